@@ -0,0 +1,48 @@
+package com.simplepay.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ../Contract/.env 파일(KEY=VALUE 형식)을 읽는 공용 헬퍼
+ * Wallet 디렉터리에서 실행한다고 가정하므로 프로젝트 홈은 user.dir의 상위 폴더
+ */
+public final class EnvFile {
+    private static final Logger logger = LoggerFactory.getLogger(EnvFile.class);
+
+    private EnvFile() {
+    }
+
+    public static String projectHome() {
+        return new File(System.getProperty("user.dir")).getParent();
+    }
+
+    public static Map<String, String> load() {
+        Map<String, String> env = new HashMap<>();
+        try {
+            Path envPath = Paths.get(projectHome(), "Contract", ".env");
+            List<String> lines = Files.readAllLines(envPath);
+            for (String line : lines) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int idx = line.indexOf('=');
+                if (idx > 0) {
+                    String key = line.substring(0, idx).trim();
+                    String value = line.substring(idx + 1).trim();
+                    env.put(key, value);
+                }
+            }
+        } catch (Exception e) {
+            logger.warn(".env 파일을 읽을 수 없습니다: {}", e.getMessage());
+        }
+        return env;
+    }
+}
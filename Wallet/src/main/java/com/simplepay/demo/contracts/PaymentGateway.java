@@ -7,6 +7,7 @@ import java.util.List;
 import org.web3j.abi.TypeReference;
 import org.web3j.abi.datatypes.Address;
 import org.web3j.abi.datatypes.Bool;
+import org.web3j.abi.datatypes.Event;
 import org.web3j.abi.datatypes.Function;
 import org.web3j.abi.datatypes.Type;
 import org.web3j.abi.datatypes.generated.Uint256;
@@ -14,6 +15,8 @@ import org.web3j.crypto.Credentials;
 import org.web3j.protocol.Web3j;
 import org.web3j.protocol.core.RemoteCall;
 import org.web3j.protocol.core.RemoteFunctionCall;
+import org.web3j.protocol.core.methods.response.BaseEventResponse;
+import org.web3j.protocol.core.methods.response.Log;
 import org.web3j.protocol.core.methods.response.TransactionReceipt;
 import org.web3j.tx.Contract;
 import org.web3j.tx.TransactionManager;
@@ -23,6 +26,9 @@ import org.web3j.tx.gas.ContractGasProvider;
  * PaymentGateway 스마트 컨트랙트를 위한 Java 래퍼 클래스
  */
 public class PaymentGateway extends Contract {
+    public static final Event WITHDRAWREQUESTED_EVENT = new Event("WithdrawRequested",
+        Arrays.<TypeReference<?>>asList(new TypeReference<Address>(true) {}, new TypeReference<Uint256>() {}, new TypeReference<Address>(true) {}));
+
     public RemoteCall<TransactionReceipt> mintTokenOnDeposit(String user, BigInteger amount) {
     final Function function = new Function("mintTokenOnDeposit",
         Arrays.asList(new Address(user), new Uint256(amount)),
@@ -73,6 +79,16 @@ public class PaymentGateway extends Contract {
         return executeRemoteCallTransaction(function);
     }
 
+    public static WithdrawRequestedEventResponse getWithdrawRequestedEventFromLog(Log log) {
+        Contract.EventValuesWithLog eventValues = staticExtractEventParametersWithLog(WITHDRAWREQUESTED_EVENT, log);
+        WithdrawRequestedEventResponse typedResponse = new WithdrawRequestedEventResponse();
+        typedResponse.log = log;
+        typedResponse.user = (String) eventValues.getIndexedValues().get(0).getValue();
+        typedResponse.treasury = (String) eventValues.getIndexedValues().get(1).getValue();
+        typedResponse.amount = (BigInteger) eventValues.getNonIndexedValues().get(0).getValue();
+        return typedResponse;
+    }
+
     public static PaymentGateway load(String contractAddress, Web3j web3j, Credentials credentials, ContractGasProvider contractGasProvider) {
         return new PaymentGateway(contractAddress, web3j, credentials, contractGasProvider);
     }
@@ -80,4 +96,12 @@ public class PaymentGateway extends Contract {
     public static PaymentGateway load(String contractAddress, Web3j web3j, TransactionManager transactionManager, ContractGasProvider contractGasProvider) {
         return new PaymentGateway(contractAddress, web3j, transactionManager, contractGasProvider);
     }
+
+    public static class WithdrawRequestedEventResponse extends BaseEventResponse {
+        public String user;
+
+        public BigInteger amount;
+
+        public String treasury;
+    }
 }
\ No newline at end of file
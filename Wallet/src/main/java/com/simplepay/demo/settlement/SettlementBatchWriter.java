@@ -0,0 +1,145 @@
+package com.simplepay.demo.settlement;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.Stream;
+
+/**
+ * 닫힌 정산 윈도우를 배치 파일로 기록
+ *
+ * 배치 파일(settlement-yyyyMMdd'T'HHmmss'Z'.csv)은 한 번 쓰면 수정하지 않으며,
+ * 각 파일의 SHA-256 값은 batches.sha256 에 추가 기록된다 (sha256sum -c 로 검증 가능)
+ */
+class SettlementBatchWriter {
+    private static final Logger logger = LoggerFactory.getLogger(SettlementBatchWriter.class);
+
+    static final String MANIFEST_FILE = "batches.sha256";
+    private static final DateTimeFormatter FILE_TIME =
+        DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    private final Path outputDir;
+
+    SettlementBatchWriter(Path outputDir) throws IOException {
+        this.outputDir = outputDir;
+        Files.createDirectories(outputDir);
+    }
+
+    void write(SettlementWindow window) throws IOException {
+        if (window.getTotals().isEmpty()) {
+            return;
+        }
+
+        byte[] content = render(window);
+        String checksum = sha256(content);
+        String fileName = "settlement-" + FILE_TIME.format(Instant.ofEpochSecond(window.getStart())) + ".csv";
+        Path target = outputDir.resolve(fileName);
+        String manifestLine = checksum + "  " + fileName;
+
+        if (Files.exists(target)) {
+            // 체크포인트 저장 전에 중단된 경우 같은 윈도우가 다시 닫힐 수 있음
+            String existing = sha256(Files.readAllBytes(target));
+            if (!existing.equals(checksum)) {
+                throw new SettlementConflictException("Settlement batch " + fileName + " already exists with different content");
+            }
+            if (!manifestContains(manifestLine)) {
+                appendManifest(manifestLine);
+            }
+            logger.info("Settlement batch {} already written, skipping", fileName);
+            return;
+        }
+
+        // 파일 내용이 디스크에 기록된 뒤에만 manifest에 체크섬을 추가
+        writeDurably(target, content);
+        appendManifest(manifestLine);
+
+        logger.info("Settlement batch {} written: {} rows, sha256 {}", fileName, window.getTotals().size(), checksum);
+    }
+
+    private byte[] render(SettlementWindow window) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# window_start=").append(Instant.ofEpochSecond(window.getStart()))
+            .append(" window_end=").append(Instant.ofEpochSecond(window.getEnd())).append('\n');
+        sb.append("user,treasury,amount_wei,requests\n");
+
+        BigInteger total = BigInteger.ZERO;
+        int requests = 0;
+        for (SettlementWindow.Total row : window.getTotals()) {
+            sb.append(row.getUser()).append(',')
+                .append(row.getTreasury()).append(',')
+                .append(row.getAmount()).append(',')
+                .append(row.getCount()).append('\n');
+            total = total.add(row.getAmount());
+            requests += row.getCount();
+        }
+        sb.append("# total_wei=").append(total).append(" requests=").append(requests).append('\n');
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private boolean manifestContains(String line) throws IOException {
+        Path manifest = outputDir.resolve(MANIFEST_FILE);
+        if (!Files.exists(manifest)) {
+            return false;
+        }
+        try (Stream<String> lines = Files.lines(manifest)) {
+            return lines.anyMatch(line::equals);
+        }
+    }
+
+    private void appendManifest(String line) throws IOException {
+        Files.write(outputDir.resolve(MANIFEST_FILE), (line + "\n").getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+    }
+
+    /**
+     * 임시 파일에 쓰고 fsync 한 뒤 target으로 원자적으로 교체하고 디렉터리까지 fsync
+     * 전원 장애 후에도 target은 이전 내용이거나 완전한 새 내용만 갖는다
+     */
+    static void writeDurably(Path target, byte[] content) throws IOException {
+        Path dir = target.toAbsolutePath().getParent();
+        Path tmp = dir.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(dir);
+    }
+
+    private static void syncDirectory(Path dir) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows 등 디렉터리를 열 수 없는 플랫폼에서는 rename의 원자성에만 의존
+            logger.debug("Directory sync not supported for {}", dir);
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return Numeric.toHexStringNoPrefix(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
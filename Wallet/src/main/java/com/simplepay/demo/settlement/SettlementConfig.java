@@ -0,0 +1,90 @@
+package com.simplepay.demo.settlement;
+
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * 정산 파이프라인 설정 - 잘못된 값은 생성 시점에 IllegalArgumentException으로 거부
+ */
+public class SettlementConfig {
+    private final String gatewayAddress;
+    private final long confirmations;
+    private final long windowSeconds;
+    private final long pollSeconds;
+    private final long maxBlockRange;
+    private final BigInteger startBlock;
+
+    public SettlementConfig(String gatewayAddress, long confirmations, long windowSeconds,
+                            long pollSeconds, long maxBlockRange, BigInteger startBlock) {
+        if (gatewayAddress == null || gatewayAddress.isEmpty()) {
+            throw new IllegalArgumentException("GATEWAY_ADDR must be set");
+        }
+        if (confirmations < 0) {
+            throw new IllegalArgumentException("SETTLEMENT_CONFIRMATIONS must not be negative: " + confirmations);
+        }
+        if (windowSeconds <= 0) {
+            throw new IllegalArgumentException("SETTLEMENT_WINDOW_SECONDS must be positive: " + windowSeconds);
+        }
+        if (pollSeconds <= 0) {
+            throw new IllegalArgumentException("SETTLEMENT_POLL_SECONDS must be positive: " + pollSeconds);
+        }
+        if (maxBlockRange <= 0) {
+            throw new IllegalArgumentException("SETTLEMENT_MAX_BLOCK_RANGE must be positive: " + maxBlockRange);
+        }
+        if (startBlock.signum() < 0) {
+            throw new IllegalArgumentException("SETTLEMENT_START_BLOCK must not be negative: " + startBlock);
+        }
+        this.gatewayAddress = gatewayAddress;
+        this.confirmations = confirmations;
+        this.windowSeconds = windowSeconds;
+        this.pollSeconds = pollSeconds;
+        this.maxBlockRange = maxBlockRange;
+        this.startBlock = startBlock;
+    }
+
+    /**
+     * .env 값에서 설정을 생성 (SETTLEMENT_* 가 없으면 기본값 사용)
+     */
+    public static SettlementConfig fromEnv(Map<String, String> env) {
+        return new SettlementConfig(
+            env.get("GATEWAY_ADDR"),
+            parseLong(env, "SETTLEMENT_CONFIRMATIONS", "12"),
+            parseLong(env, "SETTLEMENT_WINDOW_SECONDS", "3600"),
+            parseLong(env, "SETTLEMENT_POLL_SECONDS", "15"),
+            parseLong(env, "SETTLEMENT_MAX_BLOCK_RANGE", "2000"),
+            BigInteger.valueOf(parseLong(env, "SETTLEMENT_START_BLOCK", "0")));
+    }
+
+    private static long parseLong(Map<String, String> env, String key, String defaultValue) {
+        String value = env.getOrDefault(key, defaultValue);
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(key + " must be a number: " + value);
+        }
+    }
+
+    public String getGatewayAddress() {
+        return gatewayAddress;
+    }
+
+    public long getConfirmations() {
+        return confirmations;
+    }
+
+    public long getWindowSeconds() {
+        return windowSeconds;
+    }
+
+    public long getPollSeconds() {
+        return pollSeconds;
+    }
+
+    public long getMaxBlockRange() {
+        return maxBlockRange;
+    }
+
+    public BigInteger getStartBlock() {
+        return startBlock;
+    }
+}
@@ -0,0 +1,11 @@
+package com.simplepay.demo.settlement;
+
+/**
+ * 이미 기록된 배치 파일과 다시 계산한 윈도우 내용이 다를 때 발생
+ * 재시도로 해결되지 않으므로 파이프라인을 중단하고 운영자가 확인해야 한다
+ */
+public class SettlementConflictException extends RuntimeException {
+    public SettlementConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,101 @@
+package com.simplepay.demo.settlement;
+
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 하나의 정산 윈도우 [start, end) 에 속한 출금 요청을 (사용자, 금고) 별로 집계
+ * 윈도우 중간에 setTreasury로 금고가 바뀌어도 금고별로 따로 대사할 수 있도록 분리한다
+ * 윈도우가 닫히면 버려지므로 메모리 사용량은 윈도우 하나의 이벤트 수로 제한된다
+ *
+ * 중복 제거 범위:
+ * - 한 프로세스 안에서는 (txHash, logIndex) 집합으로 같은 로그를 한 번만 집계
+ *   (RPC 중복 응답, 오류 후 같은 블록 구간 재시도)
+ * - 재시작 시에는 이 집합이 비어 있는 상태로 윈도우를 다시 만든다. 이미 기록된 윈도우는
+ *   체크포인트의 closedUntil 로 건너뛰고, 열린 윈도우는 첫 블록부터 다시 읽어 처음부터 재집계한다.
+ *   체크포인트 저장 전에 중단되어 같은 윈도우가 다시 닫히면 SettlementBatchWriter가 동일 내용인지 확인한다
+ */
+class SettlementWindow {
+    private final long start;
+    private final long end;
+    // 이 윈도우 이벤트 중 가장 작은 블록 번호 - 재시작 시 여기부터 다시 읽음 (eth_getLogs 응답 순서와 무관)
+    private BigInteger firstBlock;
+
+    // (txHash, logIndex) 중복 제거용 - 현재 프로세스 안에서만 유효 (클래스 주석 참고)
+    private final Set<String> seenEvents = new HashSet<>();
+    // "user,treasury" (소문자 주소) 순으로 정렬해 두어 배치 파일 내용이 항상 동일하게 생성되도록 함
+    private final Map<String, Total> totals = new TreeMap<>();
+
+    SettlementWindow(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     * @return 새 이벤트로 집계되었으면 true, 이미 본 이벤트면 false
+     */
+    boolean add(String txHash, BigInteger logIndex, BigInteger blockNumber, String user, String treasury, BigInteger amount) {
+        if (!seenEvents.add(txHash.toLowerCase() + ":" + logIndex)) {
+            return false;
+        }
+        firstBlock = firstBlock == null ? blockNumber : firstBlock.min(blockNumber);
+        String normalizedUser = user.toLowerCase();
+        String normalizedTreasury = treasury.toLowerCase();
+        totals.computeIfAbsent(normalizedUser + "," + normalizedTreasury,
+            key -> new Total(normalizedUser, normalizedTreasury)).add(amount);
+        return true;
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return end;
+    }
+
+    BigInteger getFirstBlock() {
+        return firstBlock;
+    }
+
+    Collection<Total> getTotals() {
+        return totals.values();
+    }
+
+    static class Total {
+        private final String user;
+        private final String treasury;
+        private BigInteger amount = BigInteger.ZERO;
+        private int count;
+
+        Total(String user, String treasury) {
+            this.user = user;
+            this.treasury = treasury;
+        }
+
+        void add(BigInteger value) {
+            amount = amount.add(value);
+            count++;
+        }
+
+        String getUser() {
+            return user;
+        }
+
+        String getTreasury() {
+            return treasury;
+        }
+
+        BigInteger getAmount() {
+            return amount;
+        }
+
+        int getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.simplepay.demo.settlement;
+
+import com.simplepay.demo.EnvFile;
+import com.simplepay.demo.contracts.PaymentGateway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.core.DefaultBlockParameter;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.core.methods.response.Log;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.protocol.http.HttpService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PaymentGateway의 WithdrawRequested 이벤트를 확정(confirmation) 깊이에 도달하는 대로 읽어
+ * (사용자, 금고)/정산 윈도우 단위로 집계하고, 윈도우가 닫히면 오프체인 정산용 배치 파일을 생성
+ *
+ * 열린 윈도우만 메모리에 유지하고, 체크포인트에는 재시작 시 다시 읽어야 할 블록과
+ * 이미 정산된 시각만 저장하므로 전체 체인을 다시 스캔하지 않는다
+ */
+public class WithdrawSettlementPipeline {
+    private static final Logger logger = LoggerFactory.getLogger(WithdrawSettlementPipeline.class);
+
+    private static final String CHECKPOINT_FILE = "checkpoint.properties";
+
+    private final Web3j web3j;
+    private final SettlementConfig config;
+    private final Path outputDir;
+    private final SettlementBatchWriter batchWriter;
+    private final String withdrawTopic = EventEncoder.encode(PaymentGateway.WITHDRAWREQUESTED_EVENT);
+
+    // 윈도우 시작 시각(epoch seconds) -> 열린 윈도우
+    private final TreeMap<Long, SettlementWindow> openWindows = new TreeMap<>();
+    // 다음에 스캔할 블록 번호
+    private BigInteger nextBlock;
+    // 이 시각 이전의 윈도우는 이미 배치 파일로 기록됨
+    private long closedUntil;
+
+    // 같은 블록의 로그가 연속으로 오므로 마지막 블록의 timestamp만 캐시
+    private BigInteger cachedBlockNumber;
+    private long cachedBlockTimestamp;
+
+    public WithdrawSettlementPipeline(Web3j web3j, SettlementConfig config, Path outputDir) throws IOException {
+        this.web3j = web3j;
+        this.config = config;
+        this.outputDir = outputDir;
+        this.batchWriter = new SettlementBatchWriter(outputDir);
+        loadCheckpoint();
+    }
+
+    public void run() throws Exception {
+        logger.info("Settlement pipeline started: gateway {}, from block {}, window {}s, {} confirmations",
+            config.getGatewayAddress(), nextBlock, config.getWindowSeconds(), config.getConfirmations());
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                if (pollOnce()) {
+                    continue;
+                }
+            } catch (IOException | ClientConnectionException e) {
+                // 전송 오류만 같은 블록 구간부터 다음 주기에 다시 시도
+                // SettlementConflictException이나 디코딩 실패 등 다른 RuntimeException은 재시도해도 같으므로 종료
+                logger.warn("Settlement poll failed, retrying in {}s: {}", config.getPollSeconds(), e.toString());
+            }
+            TimeUnit.SECONDS.sleep(config.getPollSeconds());
+        }
+    }
+
+    /**
+     * 확정된 블록 구간 하나를 처리
+     *
+     * @return 처리할 블록이 있었으면 true (따라잡는 중이므로 바로 다시 호출)
+     */
+    boolean pollOnce() throws IOException {
+        EthBlockNumber blockNumber = web3j.ethBlockNumber().send();
+        if (blockNumber.hasError()) {
+            throw new IOException("eth_blockNumber failed: " + blockNumber.getError().getMessage());
+        }
+        BigInteger confirmedHead = blockNumber.getBlockNumber().subtract(BigInteger.valueOf(config.getConfirmations()));
+        if (nextBlock.compareTo(confirmedHead) > 0) {
+            return false;
+        }
+
+        BigInteger fromBlock = nextBlock;
+        BigInteger toBlock = fromBlock.add(BigInteger.valueOf(config.getMaxBlockRange() - 1)).min(confirmedHead);
+
+        EthFilter filter = new EthFilter(DefaultBlockParameter.valueOf(fromBlock),
+            DefaultBlockParameter.valueOf(toBlock), config.getGatewayAddress());
+        filter.addSingleTopic(withdrawTopic);
+        EthLog ethLog = web3j.ethGetLogs(filter).send();
+        if (ethLog.hasError()) {
+            throw new IOException("eth_getLogs failed: " + ethLog.getError().getMessage());
+        }
+
+        int accepted = 0;
+        for (EthLog.LogResult<?> result : ethLog.getLogs()) {
+            Log log = (Log) result.get();
+            if (log.isRemoved()) {
+                continue;
+            }
+            if (accept(log)) {
+                accepted++;
+            }
+        }
+
+        // 블록 timestamp는 단조 증가하므로 toBlock 시각 이전에 끝난 윈도우에는 더 이상 이벤트가 오지 않음
+        closeWindowsBefore(blockTimestamp(toBlock));
+        nextBlock = toBlock.add(BigInteger.ONE);
+        saveCheckpoint();
+
+        logger.info("Scanned blocks {}..{}: {} withdraw requests, {} open windows",
+            fromBlock, toBlock, accepted, openWindows.size());
+        return true;
+    }
+
+    private boolean accept(Log log) throws IOException {
+        PaymentGateway.WithdrawRequestedEventResponse event = PaymentGateway.getWithdrawRequestedEventFromLog(log);
+        long timestamp = blockTimestamp(log.getBlockNumber());
+        long windowStart = windowStartOf(timestamp);
+        if (windowStart < closedUntil) {
+            // 이미 배치 파일로 기록된 윈도우의 이벤트 (일부 윈도우 기록 후 실패한 구간을 재시도하는 경우 등)
+            logger.warn("Skipping withdraw request {}:{} in block {}: window {} already settled (closedUntil {})",
+                log.getTransactionHash(), log.getLogIndex(), log.getBlockNumber(), windowStart, closedUntil);
+            return false;
+        }
+
+        SettlementWindow window = openWindows.computeIfAbsent(windowStart,
+            start -> new SettlementWindow(start, start + config.getWindowSeconds()));
+        return window.add(log.getTransactionHash(), log.getLogIndex(), log.getBlockNumber(), event.user, event.treasury, event.amount);
+    }
+
+    private void closeWindowsBefore(long timestamp) throws IOException {
+        Iterator<SettlementWindow> it = openWindows.values().iterator();
+        while (it.hasNext()) {
+            SettlementWindow window = it.next();
+            if (window.getEnd() > timestamp) {
+                break;
+            }
+            batchWriter.write(window);
+            // 이후 윈도우 기록이 실패해 같은 구간을 재시도해도 이 윈도우의 이벤트는 다시 집계하지 않음
+            closedUntil = Math.max(closedUntil, window.getEnd());
+            it.remove();
+        }
+        closedUntil = Math.max(closedUntil, windowStartOf(timestamp));
+    }
+
+    private long windowStartOf(long timestamp) {
+        return Math.floorDiv(timestamp, config.getWindowSeconds()) * config.getWindowSeconds();
+    }
+
+    private long blockTimestamp(BigInteger blockNumber) throws IOException {
+        if (!blockNumber.equals(cachedBlockNumber)) {
+            EthBlock ethBlock = web3j.ethGetBlockByNumber(DefaultBlockParameter.valueOf(blockNumber), false).send();
+            if (ethBlock.hasError() || ethBlock.getBlock() == null) {
+                // 노드가 아직 동기화되지 않았거나 pruning된 경우 - 다음 주기에 재시도
+                throw new IOException("Block " + blockNumber + " not available from node");
+            }
+            cachedBlockTimestamp = ethBlock.getBlock().getTimestamp().longValueExact();
+            cachedBlockNumber = blockNumber;
+        }
+        return cachedBlockTimestamp;
+    }
+
+    BigInteger getNextBlock() {
+        return nextBlock;
+    }
+
+    long getClosedUntil() {
+        return closedUntil;
+    }
+
+    private void loadCheckpoint() throws IOException {
+        Path checkpoint = outputDir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            nextBlock = config.getStartBlock();
+            closedUntil = 0;
+            return;
+        }
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            props.load(in);
+        }
+
+        // closedUntil/resumeBlock는 이 윈도우 크기와 컨트랙트 기준으로 계산된 값이므로 설정이 바뀌면 이어서 처리할 수 없음
+        // (예: 윈도우를 늘리면 새 윈도우 시작이 closedUntil보다 앞서 이벤트가 버려짐)
+        String windowSeconds = props.getProperty("windowSeconds");
+        if (!Long.toString(config.getWindowSeconds()).equals(windowSeconds)) {
+            throw new IllegalStateException(checkpoint + " was written with SETTLEMENT_WINDOW_SECONDS=" + windowSeconds
+                + " but current setting is " + config.getWindowSeconds() + "; use a new SETTLEMENT_DIR");
+        }
+        String gatewayAddress = props.getProperty("gatewayAddress");
+        if (!config.getGatewayAddress().equalsIgnoreCase(gatewayAddress)) {
+            throw new IllegalStateException(checkpoint + " was written for GATEWAY_ADDR=" + gatewayAddress
+                + " but current setting is " + config.getGatewayAddress() + "; use a new SETTLEMENT_DIR");
+        }
+
+        nextBlock = new BigInteger(props.getProperty("resumeBlock"));
+        closedUntil = Long.parseLong(props.getProperty("closedUntil"));
+    }
+
+    private void saveCheckpoint() throws IOException {
+        // 열린 윈도우는 저장하지 않고, 재시작 시 가장 오래된 열린 윈도우의 첫 블록부터 다시 읽어 복원
+        BigInteger resumeBlock = openWindows.isEmpty() ? nextBlock : openWindows.firstEntry().getValue().getFirstBlock();
+
+        Properties props = new Properties();
+        props.setProperty("resumeBlock", resumeBlock.toString());
+        props.setProperty("closedUntil", Long.toString(closedUntil));
+        props.setProperty("windowSeconds", Long.toString(config.getWindowSeconds()));
+        props.setProperty("gatewayAddress", config.getGatewayAddress());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        props.store(out, "WithdrawSettlementPipeline checkpoint");
+        SettlementBatchWriter.writeDurably(outputDir.resolve(CHECKPOINT_FILE), out.toByteArray());
+    }
+
+    public static void main(String[] args) {
+        System.exit(runPipeline());
+    }
+
+    // web3j.shutdown()이 실행된 뒤에 종료하도록 exit code를 반환
+    private static int runPipeline() {
+        // ../Contract/.env 파일에서 값 읽기
+        Map<String, String> env = EnvFile.load();
+        SettlementConfig config;
+        try {
+            config = SettlementConfig.fromEnv(env);
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid settlement configuration: {}", e.getMessage());
+            return 1;
+        }
+
+        String rpcUrl = env.getOrDefault("METADIUM_DEV_URL", "https://api.metadium.com/dev");
+        Path outputDir = Paths.get(env.getOrDefault("SETTLEMENT_DIR", Paths.get(EnvFile.projectHome(), "settlement").toString()));
+
+        Web3j web3j = Web3j.build(new HttpService(rpcUrl));
+        try {
+            new WithdrawSettlementPipeline(web3j, config, outputDir).run();
+            return 0;
+        } catch (Exception e) {
+            logger.error("Settlement pipeline failed", e);
+            return 1;
+        } finally {
+            web3j.shutdown();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.simplepay.demo.settlement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SettlementBatchWriterTest {
+    private static final String USER = "0x00000000000000000000000000000000000000aa";
+    private static final String TREASURY = "0x0000000000000000000000000000000000000001";
+    private static final String BATCH_FILE = "settlement-19700101T000000Z.csv";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesBatchFileAndManifestChecksum() throws Exception {
+        new SettlementBatchWriter(dir).write(window(BigInteger.TEN));
+
+        List<String> lines = Files.readAllLines(dir.resolve(BATCH_FILE));
+        assertEquals(Arrays.asList(
+            "# window_start=1970-01-01T00:00:00Z window_end=1970-01-01T00:01:40Z",
+            "user,treasury,amount_wei,requests",
+            USER + "," + TREASURY + ",10,1",
+            "# total_wei=10 requests=1"), lines);
+
+        assertEquals(Arrays.asList(sha256(dir.resolve(BATCH_FILE)) + "  " + BATCH_FILE), manifest());
+        assertFalse(Files.exists(dir.resolve(BATCH_FILE + ".tmp")));
+    }
+
+    @Test
+    void emptyWindowWritesNothing() throws Exception {
+        new SettlementBatchWriter(dir).write(new SettlementWindow(0, 100));
+
+        assertFalse(Files.exists(dir.resolve(BATCH_FILE)));
+        assertFalse(Files.exists(dir.resolve(SettlementBatchWriter.MANIFEST_FILE)));
+    }
+
+    @Test
+    void rewritingIdenticalBatchIsSkipped() throws Exception {
+        SettlementBatchWriter writer = new SettlementBatchWriter(dir);
+        writer.write(window(BigInteger.TEN));
+        writer.write(window(BigInteger.TEN));
+
+        assertEquals(1, manifest().size());
+    }
+
+    @Test
+    void rewritingIdenticalBatchRestoresMissingManifestLine() throws Exception {
+        SettlementBatchWriter writer = new SettlementBatchWriter(dir);
+        writer.write(window(BigInteger.TEN));
+        Files.delete(dir.resolve(SettlementBatchWriter.MANIFEST_FILE));
+
+        writer.write(window(BigInteger.TEN));
+
+        assertEquals(Arrays.asList(sha256(dir.resolve(BATCH_FILE)) + "  " + BATCH_FILE), manifest());
+    }
+
+    @Test
+    void rewritingWithDifferentContentFails() throws Exception {
+        SettlementBatchWriter writer = new SettlementBatchWriter(dir);
+        writer.write(window(BigInteger.TEN));
+        byte[] original = Files.readAllBytes(dir.resolve(BATCH_FILE));
+
+        assertThrows(SettlementConflictException.class, () -> writer.write(window(BigInteger.ONE)));
+
+        assertEquals(new String(original, StandardCharsets.UTF_8),
+            new String(Files.readAllBytes(dir.resolve(BATCH_FILE)), StandardCharsets.UTF_8));
+        assertEquals(1, manifest().size());
+    }
+
+    @Test
+    void writeDurablyReplacesExistingFile() throws Exception {
+        Path target = dir.resolve("checkpoint.properties");
+        SettlementBatchWriter.writeDurably(target, "a".getBytes(StandardCharsets.UTF_8));
+        SettlementBatchWriter.writeDurably(target, "b".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("b", new String(Files.readAllBytes(target), StandardCharsets.UTF_8));
+        assertFalse(Files.exists(dir.resolve("checkpoint.properties.tmp")));
+    }
+
+    private static SettlementWindow window(BigInteger amount) {
+        SettlementWindow window = new SettlementWindow(0, 100);
+        window.add("0xabc", BigInteger.ZERO, BigInteger.ONE, USER, TREASURY, amount);
+        return window;
+    }
+
+    private List<String> manifest() throws Exception {
+        return Files.readAllLines(dir.resolve(SettlementBatchWriter.MANIFEST_FILE));
+    }
+
+    private static String sha256(Path file) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(Files.readAllBytes(file))) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,67 @@
+package com.simplepay.demo.settlement;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SettlementConfigTest {
+    private static final String GATEWAY = "0x0000000000000000000000000000000000000abc";
+
+    @Test
+    void usesDefaultsWhenSettlementKeysAreMissing() {
+        SettlementConfig config = SettlementConfig.fromEnv(env());
+
+        assertEquals(GATEWAY, config.getGatewayAddress());
+        assertEquals(12, config.getConfirmations());
+        assertEquals(3600, config.getWindowSeconds());
+        assertEquals(15, config.getPollSeconds());
+        assertEquals(2000, config.getMaxBlockRange());
+        assertEquals(BigInteger.ZERO, config.getStartBlock());
+    }
+
+    @Test
+    void acceptsZeroConfirmations() {
+        Map<String, String> env = env();
+        env.put("SETTLEMENT_CONFIRMATIONS", "0");
+
+        assertEquals(0, SettlementConfig.fromEnv(env).getConfirmations());
+    }
+
+    @Test
+    void rejectsMissingGateway() {
+        Map<String, String> env = env();
+        env.remove("GATEWAY_ADDR");
+
+        assertThrows(IllegalArgumentException.class, () -> SettlementConfig.fromEnv(env));
+    }
+
+    @Test
+    void rejectsInvalidValues() {
+        assertRejected("SETTLEMENT_CONFIRMATIONS", "-1");
+        assertRejected("SETTLEMENT_WINDOW_SECONDS", "0");
+        assertRejected("SETTLEMENT_POLL_SECONDS", "0");
+        assertRejected("SETTLEMENT_MAX_BLOCK_RANGE", "0");
+        assertRejected("SETTLEMENT_START_BLOCK", "-1");
+        assertRejected("SETTLEMENT_WINDOW_SECONDS", "1h");
+    }
+
+    private static void assertRejected(String key, String value) {
+        Map<String, String> env = env();
+        env.put(key, value);
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SettlementConfig.fromEnv(env));
+        assertTrue(e.getMessage().startsWith(key), e.getMessage());
+    }
+
+    private static Map<String, String> env() {
+        Map<String, String> env = new HashMap<>();
+        env.put("GATEWAY_ADDR", GATEWAY);
+        return env;
+    }
+}
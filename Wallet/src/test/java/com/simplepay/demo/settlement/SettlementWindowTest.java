@@ -0,0 +1,78 @@
+package com.simplepay.demo.settlement;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SettlementWindowTest {
+    private static final String USER_A = "0x00000000000000000000000000000000000000aa";
+    private static final String USER_B = "0x00000000000000000000000000000000000000bb";
+    private static final String TREASURY_1 = "0x0000000000000000000000000000000000000001";
+    private static final String TREASURY_2 = "0x0000000000000000000000000000000000000002";
+
+    @Test
+    void duplicateTxHashAndLogIndexIsCountedOnce() {
+        SettlementWindow window = new SettlementWindow(0, 100);
+
+        assertTrue(window.add("0xABC", BigInteger.ZERO, BigInteger.ONE, USER_A, TREASURY_1, BigInteger.TEN));
+        assertFalse(window.add("0xabc", BigInteger.ZERO, BigInteger.ONE, USER_A, TREASURY_1, BigInteger.TEN));
+
+        SettlementWindow.Total total = window.getTotals().iterator().next();
+        assertEquals(BigInteger.TEN, total.getAmount());
+        assertEquals(1, total.getCount());
+    }
+
+    @Test
+    void sameTransactionWithDifferentLogIndexIsCountedSeparately() {
+        SettlementWindow window = new SettlementWindow(0, 100);
+
+        assertTrue(window.add("0xabc", BigInteger.ZERO, BigInteger.ONE, USER_A, TREASURY_1, BigInteger.TEN));
+        assertTrue(window.add("0xabc", BigInteger.ONE, BigInteger.ONE, USER_A, TREASURY_1, BigInteger.TEN));
+
+        SettlementWindow.Total total = window.getTotals().iterator().next();
+        assertEquals(BigInteger.valueOf(20), total.getAmount());
+        assertEquals(2, total.getCount());
+    }
+
+    @Test
+    void firstBlockIsLowestEventBlockRegardlessOfOrder() {
+        SettlementWindow window = new SettlementWindow(0, 100);
+
+        window.add("0x01", BigInteger.ZERO, BigInteger.valueOf(7), USER_A, TREASURY_1, BigInteger.TEN);
+        window.add("0x02", BigInteger.ZERO, BigInteger.valueOf(3), USER_A, TREASURY_1, BigInteger.TEN);
+        window.add("0x03", BigInteger.ZERO, BigInteger.valueOf(5), USER_A, TREASURY_1, BigInteger.TEN);
+
+        assertEquals(BigInteger.valueOf(3), window.getFirstBlock());
+    }
+
+    @Test
+    void totalsAreKeyedByUserAndTreasuryInSortedOrder() {
+        SettlementWindow window = new SettlementWindow(0, 100);
+
+        window.add("0x01", BigInteger.ZERO, BigInteger.ONE, USER_B, TREASURY_1, BigInteger.valueOf(5));
+        window.add("0x02", BigInteger.ZERO, BigInteger.ONE, USER_A.toUpperCase().replace("0X", "0x"), TREASURY_2, BigInteger.valueOf(7));
+        window.add("0x03", BigInteger.ZERO, BigInteger.ONE, USER_A, TREASURY_1, BigInteger.valueOf(3));
+        window.add("0x04", BigInteger.ZERO, BigInteger.ONE, USER_A, TREASURY_2, BigInteger.valueOf(1));
+
+        List<SettlementWindow.Total> totals = new ArrayList<>(window.getTotals());
+        assertEquals(3, totals.size());
+
+        assertEquals(USER_A, totals.get(0).getUser());
+        assertEquals(TREASURY_1, totals.get(0).getTreasury());
+        assertEquals(BigInteger.valueOf(3), totals.get(0).getAmount());
+
+        assertEquals(USER_A, totals.get(1).getUser());
+        assertEquals(TREASURY_2, totals.get(1).getTreasury());
+        assertEquals(BigInteger.valueOf(8), totals.get(1).getAmount());
+        assertEquals(2, totals.get(1).getCount());
+
+        assertEquals(USER_B, totals.get(2).getUser());
+        assertEquals(BigInteger.valueOf(5), totals.get(2).getAmount());
+    }
+}
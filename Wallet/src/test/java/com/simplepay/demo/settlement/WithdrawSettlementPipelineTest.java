@@ -0,0 +1,320 @@
+package com.simplepay.demo.settlement;
+
+import com.simplepay.demo.contracts.PaymentGateway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.web3j.abi.EventEncoder;
+import org.web3j.protocol.Web3j;
+import org.web3j.protocol.Web3jService;
+import org.web3j.protocol.core.DefaultBlockParameterNumber;
+import org.web3j.protocol.core.Request;
+import org.web3j.protocol.core.Response;
+import org.web3j.protocol.core.methods.request.EthFilter;
+import org.web3j.protocol.core.methods.response.EthBlock;
+import org.web3j.protocol.core.methods.response.EthBlockNumber;
+import org.web3j.protocol.core.methods.response.EthLog;
+import org.web3j.protocol.exceptions.ClientConnectionException;
+import org.web3j.utils.Numeric;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Web3jService를 목으로 대체해 블록/로그를 직접 구성하고 pollOnce 동작을 검증
+ * 블록 n 의 timestamp는 기본적으로 n * 10, 정산 윈도우는 100초 (블록 0..9 가 첫 윈도우)
+ */
+class WithdrawSettlementPipelineTest {
+    private static final String GATEWAY = "0x0000000000000000000000000000000000000abc";
+    private static final String USER = "0x00000000000000000000000000000000000000aa";
+    private static final String TREASURY = "0x0000000000000000000000000000000000000001";
+    private static final String FIRST_WINDOW = "settlement-19700101T000000Z.csv";
+    private static final String SECOND_WINDOW = "settlement-19700101T000140Z.csv";
+
+    @TempDir
+    Path dir;
+
+    private final Web3jService service = mock(Web3jService.class);
+    private final Web3j web3j = Web3j.build(service);
+    private final List<EthLog.LogObject> logs = new ArrayList<>();
+    private final Map<Long, Long> timestampOverrides = new HashMap<>();
+    private long head;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        doAnswer(invocation -> respond(invocation.getArgument(0))).when(service).send(any(), any());
+    }
+
+    @AfterEach
+    void tearDown() {
+        web3j.shutdown();
+    }
+
+    @Test
+    void windowStaysOpenUntilConfirmedBlockReachesItsEnd() throws Exception {
+        addLog(3, "0x01", 0, 10);
+        timestampOverrides.put(9L, 99L);
+        WithdrawSettlementPipeline pipeline = pipeline(0);
+
+        head = 9;
+        assertTrue(pipeline.pollOnce());
+        assertFalse(Files.exists(dir.resolve(FIRST_WINDOW)));
+
+        head = 10;
+        assertTrue(pipeline.pollOnce());
+        assertEquals(Arrays.asList(USER + "," + TREASURY + ",10,1"), rows(FIRST_WINDOW));
+        assertEquals(100, pipeline.getClosedUntil());
+    }
+
+    @Test
+    void onlyConfirmedBlocksAreScanned() throws Exception {
+        WithdrawSettlementPipeline pipeline = pipeline(2);
+
+        head = 11;
+        assertTrue(pipeline.pollOnce());
+        assertEquals(BigInteger.valueOf(10), pipeline.getNextBlock());
+        assertFalse(pipeline.pollOnce());
+        assertFalse(Files.exists(dir.resolve(FIRST_WINDOW)));
+    }
+
+    @Test
+    void scanIsSplitByMaxBlockRange() throws Exception {
+        WithdrawSettlementPipeline pipeline = pipeline(0);
+
+        head = 25;
+        assertTrue(pipeline.pollOnce());
+        assertEquals(BigInteger.valueOf(10), pipeline.getNextBlock());
+        assertTrue(pipeline.pollOnce());
+        assertTrue(pipeline.pollOnce());
+        assertEquals(BigInteger.valueOf(26), pipeline.getNextBlock());
+        assertFalse(pipeline.pollOnce());
+    }
+
+    @Test
+    void duplicateLogsInResponseAreCountedOnce() throws Exception {
+        addLog(3, "0x01", 0, 10);
+        addLog(3, "0x01", 0, 10);
+        addLog(4, "0x01", 1, 5);
+        WithdrawSettlementPipeline pipeline = pipeline(0);
+
+        head = 10;
+        pipeline.pollOnce();
+        pipeline.pollOnce();
+
+        assertEquals(Arrays.asList(USER + "," + TREASURY + ",15,2"), rows(FIRST_WINDOW));
+    }
+
+    @Test
+    void checkpointResumesFromOldestOpenWindow() throws Exception {
+        addLog(3, "0x01", 0, 10);
+        addLog(12, "0x02", 0, 7);
+        head = 14;
+        WithdrawSettlementPipeline first = pipeline(0);
+        while (first.pollOnce()) {
+        }
+        assertTrue(Files.exists(dir.resolve(FIRST_WINDOW)));
+        assertEquals(BigInteger.valueOf(15), first.getNextBlock());
+
+        // 재시작: 두 번째 윈도우(첫 블록 12)의 처음부터 다시 읽음
+        WithdrawSettlementPipeline restarted = pipeline(0);
+        assertEquals(BigInteger.valueOf(12), restarted.getNextBlock());
+        assertEquals(100, restarted.getClosedUntil());
+
+        addLog(16, "0x03", 0, 3);
+        head = 20;
+        while (restarted.pollOnce()) {
+        }
+
+        assertEquals(Arrays.asList(USER + "," + TREASURY + ",10,1"), rows(FIRST_WINDOW));
+        assertEquals(Arrays.asList(USER + "," + TREASURY + ",10,2"), rows(SECOND_WINDOW));
+        assertEquals(2, Files.readAllLines(dir.resolve(SettlementBatchWriter.MANIFEST_FILE)).size());
+    }
+
+    @Test
+    void checkpointResumesFromLowestBlockWhenLogsAreUnordered() throws Exception {
+        // 노드가 같은 윈도우의 로그를 블록 역순으로 반환하는 경우
+        addLog(14, "0x02", 0, 7);
+        addLog(12, "0x01", 0, 5);
+        head = 15;
+        WithdrawSettlementPipeline first = pipeline(0);
+        while (first.pollOnce()) {
+        }
+
+        WithdrawSettlementPipeline restarted = pipeline(0);
+        assertEquals(BigInteger.valueOf(12), restarted.getNextBlock());
+
+        head = 20;
+        while (restarted.pollOnce()) {
+        }
+        assertEquals(Arrays.asList(USER + "," + TREASURY + ",12,2"), rows(SECOND_WINDOW));
+    }
+
+    @Test
+    void eventsInClosedWindowsAreSkippedAfterRestart() throws Exception {
+        Files.write(dir.resolve("checkpoint.properties"),
+            checkpoint("0", "100", "100", GATEWAY).getBytes(StandardCharsets.ISO_8859_1));
+        addLog(3, "0x01", 0, 10);
+        addLog(12, "0x02", 0, 7);
+        WithdrawSettlementPipeline pipeline = pipeline(0);
+
+        head = 20;
+        while (pipeline.pollOnce()) {
+        }
+
+        assertFalse(Files.exists(dir.resolve(FIRST_WINDOW)));
+        assertEquals(Arrays.asList(USER + "," + TREASURY + ",7,1"), rows(SECOND_WINDOW));
+    }
+
+    @Test
+    void checkpointWithDifferentWindowSizeIsRejected() throws Exception {
+        Files.write(dir.resolve("checkpoint.properties"),
+            checkpoint("0", "3600", "3600", GATEWAY).getBytes(StandardCharsets.ISO_8859_1));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> pipeline(0));
+        assertTrue(e.getMessage().contains("SETTLEMENT_WINDOW_SECONDS=3600"), e.getMessage());
+    }
+
+    @Test
+    void checkpointForDifferentGatewayIsRejected() throws Exception {
+        Files.write(dir.resolve("checkpoint.properties"),
+            checkpoint("0", "100", "100", "0x0000000000000000000000000000000000000def").getBytes(StandardCharsets.ISO_8859_1));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> pipeline(0));
+        assertTrue(e.getMessage().contains("GATEWAY_ADDR"), e.getMessage());
+    }
+
+    @Test
+    void checkpointRecordsWindowSizeAndGateway() throws Exception {
+        WithdrawSettlementPipeline pipeline = pipeline(0);
+        head = 5;
+        pipeline.pollOnce();
+
+        String checkpoint = new String(Files.readAllBytes(dir.resolve("checkpoint.properties")), StandardCharsets.ISO_8859_1);
+        assertTrue(checkpoint.contains("windowSeconds=100"), checkpoint);
+        assertTrue(checkpoint.contains("gatewayAddress=" + GATEWAY), checkpoint);
+    }
+
+    @Test
+    void missingBlockFailsPollWithoutAdvancing() throws Exception {
+        timestampOverrides.put(9L, null);
+        WithdrawSettlementPipeline pipeline = pipeline(0);
+
+        head = 9;
+        assertThrows(IOException.class, pipeline::pollOnce);
+        assertEquals(BigInteger.ZERO, pipeline.getNextBlock());
+    }
+
+    @Test
+    void runRetriesTransportErrorsAndStopsOnOtherFailures() throws Exception {
+        WithdrawSettlementPipeline pipeline = pipeline(0);
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new ClientConnectionException("Invalid response received: 502");
+            }
+            throw new ArithmeticException("unexpected");
+        }).when(service).send(any(), any());
+
+        assertThrows(ArithmeticException.class, pipeline::run);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void runStopsOnSettlementConflict() throws Exception {
+        addLog(3, "0x01", 0, 10);
+        Files.write(dir.resolve(FIRST_WINDOW), "tampered\n".getBytes(StandardCharsets.UTF_8));
+        head = 10;
+
+        assertThrows(SettlementConflictException.class, pipeline(0)::run);
+    }
+
+    private WithdrawSettlementPipeline pipeline(long confirmations) throws IOException {
+        SettlementConfig config = new SettlementConfig(GATEWAY, confirmations, 100, 1, 10, BigInteger.ZERO);
+        return new WithdrawSettlementPipeline(web3j, config, dir);
+    }
+
+    private static String checkpoint(String resumeBlock, String closedUntil, String windowSeconds, String gateway) {
+        return "resumeBlock=" + resumeBlock + "\nclosedUntil=" + closedUntil
+            + "\nwindowSeconds=" + windowSeconds + "\ngatewayAddress=" + gateway + "\n";
+    }
+
+    private void addLog(long block, String txHash, int logIndex, long amount) {
+        EthLog.LogObject log = new EthLog.LogObject();
+        log.setAddress(GATEWAY);
+        log.setBlockNumber(Numeric.encodeQuantity(BigInteger.valueOf(block)));
+        log.setTransactionHash(txHash);
+        log.setLogIndex(Numeric.encodeQuantity(BigInteger.valueOf(logIndex)));
+        log.setTopics(Arrays.asList(
+            EventEncoder.encode(PaymentGateway.WITHDRAWREQUESTED_EVENT),
+            Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(USER), 64),
+            Numeric.toHexStringWithPrefixZeroPadded(Numeric.toBigInt(TREASURY), 64)));
+        log.setData(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(amount), 64));
+        logs.add(log);
+    }
+
+    private List<String> rows(String fileName) throws IOException {
+        return Files.readAllLines(dir.resolve(fileName)).stream()
+            .filter(line -> !line.startsWith("#") && !line.startsWith("user,"))
+            .collect(Collectors.toList());
+    }
+
+    private Response<?> respond(Request<?, ?> request) {
+        switch (request.getMethod()) {
+            case "eth_blockNumber": {
+                EthBlockNumber response = new EthBlockNumber();
+                response.setResult(Numeric.encodeQuantity(BigInteger.valueOf(head)));
+                return response;
+            }
+            case "eth_getLogs": {
+                EthFilter filter = (EthFilter) request.getParams().get(0);
+                BigInteger from = ((DefaultBlockParameterNumber) filter.getFromBlock()).getBlockNumber();
+                BigInteger to = ((DefaultBlockParameterNumber) filter.getToBlock()).getBlockNumber();
+                List<EthLog.LogObject> results = new ArrayList<>();
+                for (EthLog.LogObject log : logs) {
+                    if (log.getBlockNumber().compareTo(from) >= 0 && log.getBlockNumber().compareTo(to) <= 0) {
+                        results.add(log);
+                    }
+                }
+                EthLog response = new EthLog();
+                response.setResult(new ArrayList<>(results));
+                return response;
+            }
+            case "eth_getBlockByNumber": {
+                long number = Numeric.decodeQuantity((String) request.getParams().get(0)).longValueExact();
+                EthBlock response = new EthBlock();
+                Long timestamp = number * 10;
+                if (timestampOverrides.containsKey(number)) {
+                    timestamp = timestampOverrides.get(number);
+                }
+                if (timestamp != null) {
+                    EthBlock.Block block = new EthBlock.Block();
+                    block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+                    block.setTimestamp(Numeric.encodeQuantity(BigInteger.valueOf(timestamp)));
+                    response.setResult(block);
+                }
+                return response;
+            }
+            default:
+                throw new IllegalArgumentException("Unexpected RPC call " + request.getMethod());
+        }
+    }
+}